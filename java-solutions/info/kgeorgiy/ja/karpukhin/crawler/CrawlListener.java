@@ -0,0 +1,22 @@
+package info.kgeorgiy.ja.karpukhin.crawler;
+
+import java.io.IOException;
+
+/**
+ * Receives results of a crawl as soon as they are known.
+ * Methods are called from the crawler threads, possibly concurrently, and the crawl waits for them to return.
+ */
+public interface CrawlListener {
+    /**
+     * Called when the page is downloaded.
+     * @param url - page URL
+     */
+    void downloaded(String url);
+
+    /**
+     * Called when the page cannot be downloaded or its links cannot be extracted.
+     * @param url - page URL
+     * @param e - occurred exception
+     */
+    void failed(String url, IOException e);
+}
@@ -0,0 +1,96 @@
+package info.kgeorgiy.ja.karpukhin.crawler;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton checking whether a string contains any of the given substrings in one pass.
+ */
+class ExcludeMatcher {
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    private final boolean[] terminal;
+
+    ExcludeMatcher(Collection<String> patterns) {
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Boolean> ends = new ArrayList<>();
+        children.add(new HashMap<>());
+        ends.add(false);
+        for (String pattern : patterns) {
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = children.get(node).get(pattern.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.get(node).put(pattern.charAt(i), next);
+                    children.add(new HashMap<>());
+                    ends.add(false);
+                }
+                node = next;
+            }
+            ends.set(node, true);
+        }
+
+        int size = children.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        fail = new int[size];
+        terminal = new boolean[size];
+        for (int node = 0; node < size; node++) {
+            List<Character> sorted = new ArrayList<>(children.get(node).keySet());
+            Collections.sort(sorted);
+            keys[node] = new char[sorted.size()];
+            targets[node] = new int[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                keys[node][i] = sorted.get(i);
+                targets[node][i] = children.get(node).get(sorted.get(i));
+            }
+            terminal[node] = ends.get(node);
+        }
+
+        // Breadth-first, so failure links of shorter prefixes are ready before they are used
+        Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < keys[node].length; i++) {
+                int child = targets[node][i];
+                fail[child] = node == 0 ? 0 : step(fail[node], keys[node][i]);
+                terminal[child] |= terminal[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    private int step(int node, char c) {
+        while (true) {
+            int index = Arrays.binarySearch(keys[node], c);
+            if (index >= 0) {
+                return targets[node][index];
+            }
+            if (node == 0) {
+                return 0;
+            }
+            node = fail[node];
+        }
+    }
+
+    /**
+     * Checks whether the text contains any of the patterns.
+     * @param text - text to check
+     * @return whether some pattern occurs in the text
+     */
+    boolean matches(String text) {
+        int node = 0;
+        if (terminal[node]) {
+            return true;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            node = step(node, text.charAt(i));
+            if (terminal[node]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
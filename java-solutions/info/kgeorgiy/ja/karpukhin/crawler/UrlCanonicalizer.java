@@ -0,0 +1,61 @@
+package info.kgeorgiy.ja.karpukhin.crawler;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reduces URLs that differ only trivially to one form: the fragment is dropped, scheme and host are lower-cased.
+ * Recent results are kept in a bounded cache.
+ */
+class UrlCanonicalizer {
+    private final int cacheSize;
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Creates canonicalizer.
+     * @param cacheSize - maximal number of cached URLs
+     */
+    UrlCanonicalizer(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Returns canonical form of the URL.
+     * @param url - URL to canonicalize
+     * @return canonical URL
+     */
+    String canonical(String url) {
+        String result = cache.get(url);
+        if (result == null) {
+            result = canonicalize(url);
+            if (cache.size() >= cacheSize) {
+                cache.clear();
+            }
+            cache.put(url, result);
+        }
+        return result;
+    }
+
+    private static String canonicalize(String url) {
+        int fragment = url.indexOf('#');
+        if (fragment >= 0) {
+            url = url.substring(0, fragment);
+        }
+        int scheme = url.indexOf("://");
+        if (scheme < 0) {
+            return url;
+        }
+        int authorityEnd = scheme + 3;
+        while (authorityEnd < url.length() && "/?".indexOf(url.charAt(authorityEnd)) < 0) {
+            authorityEnd++;
+        }
+        // User info keeps its case, only the host part is case-insensitive
+        int host = url.lastIndexOf('@', authorityEnd - 1) + 1;
+        host = Math.max(host, scheme + 3);
+        return url.substring(0, scheme).toLowerCase(Locale.ROOT)
+                + url.substring(scheme, host)
+                + url.substring(host, authorityEnd).toLowerCase(Locale.ROOT)
+                + url.substring(authorityEnd);
+    }
+}
@@ -3,13 +3,24 @@ package info.kgeorgiy.ja.karpukhin.crawler;
 import info.kgeorgiy.java.advanced.crawler.*;
 
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WebCrawler implements NewCrawler {
+    private static final int CANONICAL_CACHE_SIZE = 1 << 16;
+    private static final int DEFAULT_FRONTIER_CAPACITY = 1 << 14;
+    private static final int LINKS_CACHE_SIZE = 1 << 10;
+
     private final ExecutorService downloaders;
+    private final Executor downloads;
     private final ExecutorService extractors;
     private final Downloader downloader;
+    private final int perHost;
+    private final int frontierCapacity;
+    private final Map<String, HostQueue> hosts = new ConcurrentHashMap<>();
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer(CANONICAL_CACHE_SIZE);
 
     /**
      * Constructor for WebCrawler
@@ -19,9 +30,114 @@ public class WebCrawler implements NewCrawler {
      * @param perHost - number of pages to download from one host
      */
     public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
-        this.downloaders = Executors.newFixedThreadPool(downloaders);
+        this(downloader, downloaders, extractors, perHost, false);
+    }
+
+    /**
+     * Constructor for WebCrawler
+     * @param downloader - downloader for downloading pages
+     * @param downloaders - number of simultaneous downloads
+     * @param extractors - number of extractors
+     * @param perHost - number of pages to download from one host
+     * @param virtualThreads - whether every download should run on its own virtual thread
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost, boolean virtualThreads) {
+        this(downloader, downloaders, extractors, perHost, virtualThreads, DEFAULT_FRONTIER_CAPACITY);
+    }
+
+    /**
+     * Constructor for WebCrawler
+     * @param downloader - downloader for downloading pages
+     * @param downloaders - number of simultaneous downloads
+     * @param extractors - number of extractors
+     * @param perHost - number of pages to download from one host
+     * @param virtualThreads - whether every download should run on its own virtual thread
+     * @param frontierCapacity - number of pages that may wait for download before extractors are blocked
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost,
+                      boolean virtualThreads, int frontierCapacity) {
+        if (perHost <= 0) {
+            throw new IllegalArgumentException("Per host limit should be positive");
+        }
+        if (frontierCapacity <= 0) {
+            throw new IllegalArgumentException("Frontier capacity should be positive");
+        }
+        if (virtualThreads) {
+            // Threads are cheap, the number of simultaneous downloads is bounded by permits instead
+            Semaphore budget = new Semaphore(downloaders);
+            this.downloaders = Executors.newVirtualThreadPerTaskExecutor();
+            this.downloads = task -> this.downloaders.execute(() -> {
+                budget.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    budget.release();
+                }
+            });
+        } else {
+            this.downloaders = Executors.newFixedThreadPool(downloaders);
+            this.downloads = this.downloaders;
+        }
         this.extractors = Executors.newFixedThreadPool(extractors);
         this.downloader = downloader;
+        this.perHost = perHost;
+        this.frontierCapacity = frontierCapacity;
+    }
+
+    /**
+     * Downloads of one host. At most {@code perHost} of them are submitted to the downloaders at a time,
+     * the rest wait in the queue without occupying a thread. An idle queue removes itself from {@code hosts}.
+     */
+    private class HostQueue {
+        private final String host;
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private int running;
+        private boolean removed;
+
+        HostQueue(String host) {
+            this.host = host;
+        }
+
+        synchronized boolean submit(Runnable task) {
+            if (removed) {
+                return false;
+            }
+            if (running < perHost) {
+                running++;
+                downloads.execute(() -> run(task));
+            } else {
+                pending.add(task);
+            }
+            return true;
+        }
+
+        private void run(Runnable task) {
+            try {
+                task.run();
+            } finally {
+                finished();
+            }
+        }
+
+        private synchronized void finished() {
+            // The slot goes straight to the next queued download of this host
+            Runnable next = pending.poll();
+            if (next == null) {
+                if (--running == 0) {
+                    removed = true;
+                    hosts.remove(host, this);
+                }
+            } else {
+                downloads.execute(() -> run(next));
+            }
+        }
+    }
+
+    private void submit(String host, Runnable task) {
+        // A queue may be removed between the lookup and the submission, then a fresh one is taken
+        while (!hosts.computeIfAbsent(host, HostQueue::new).submit(task)) {
+            Thread.onSpinWait();
+        }
     }
 
     /**
@@ -29,49 +145,156 @@ public class WebCrawler implements NewCrawler {
      */
     @Override
     public Result download(String url, int depth, Set<String> excludes) {
-        Phaser phaser = new Phaser(1);
         Set<String> downloaded = ConcurrentHashMap.newKeySet();
-        Queue<String> urls = new ConcurrentLinkedQueue<>();
-        Set<String> used = ConcurrentHashMap.newKeySet();
         Map<String, IOException> errors = new ConcurrentHashMap<>();
-        urls.add(url);
-        recursiveDownload(urls, downloaded, errors, depth, phaser, used, excludes);
+        download(url, depth, excludes, new CrawlListener() {
+            @Override
+            public void downloaded(String url) {
+                downloaded.add(url);
+            }
+
+            @Override
+            public void failed(String url, IOException e) {
+                errors.put(url, e);
+            }
+        });
         return new Result(new ArrayList<>(downloaded), errors);
     }
 
-    private void recursiveDownload(Queue<String> urls, Set<String> downloaded, Map<String, IOException> errors, int depth, Phaser phaser, Set<String> used, Set<String> excludes) {
-        if (depth == 0) {
-            return;
+    /**
+     * Crawls pages reporting every downloaded page and error to the listener as soon as it is known.
+     * A page download waits for the listener, so a slow listener slows the crawl down,
+     * and extraction waits while too many pages are waiting for download.
+     * @param url - start URL
+     * @param depth - crawl depth
+     * @param excludes - URLs containing any of these substrings are not downloaded
+     * @param listener - receives downloaded pages and errors
+     */
+    public void download(String url, int depth, Set<String> excludes, CrawlListener listener) {
+        Crawl crawl = new Crawl(depth, excludes, listener);
+        crawl.enqueue(url, depth);
+        crawl.finished();
+        crawl.done.join();
+    }
+
+    /**
+     * State of one {@link #download} call. Every link goes straight to a download tagged with its remaining depth,
+     * so slow pages do not hold up the pages of other levels.
+     */
+    private class Crawl {
+        private final int depth;
+        private final ExcludeMatcher excludes;
+        // Keyed by canonical URL, pages are downloaded by the first raw form seen
+        private final Map<String, Integer> remaining = new ConcurrentHashMap<>();
+        private final Set<String> completed = ConcurrentHashMap.newKeySet();
+        // Links of recently extracted pages, used when a page is reached again with more depth
+        private final Map<String, List<String>> links = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > LINKS_CACHE_SIZE;
+            }
+        });
+        private final CrawlListener listener;
+        // Pages waiting for download, extractors block when it is exhausted
+        private final Semaphore frontier = new Semaphore(frontierCapacity);
+        // Scheduled downloads and extractions, plus one for the caller until the first page is enqueued
+        private final AtomicInteger inFlight = new AtomicInteger(1);
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Crawl(int depth, Set<String> excludes, CrawlListener listener) {
+            this.depth = depth;
+            this.excludes = new ExcludeMatcher(excludes);
+            this.listener = listener;
+        }
+
+        void enqueue(String url, int depth) {
+            if (depth <= 0 || excludes.matches(url)) {
+                return;
+            }
+            String key = canonicalizer.canonical(url);
+            // A page may be reached by a shorter path after it was reached by a longer one
+            while (true) {
+                Integer previous = remaining.putIfAbsent(key, depth);
+                if (previous == null) {
+                    download(url, key, false);
+                    return;
+                }
+                if (previous >= depth) {
+                    return;
+                }
+                if (remaining.replace(key, previous, depth)) {
+                    if (completed.contains(key)) {
+                        List<String> pageLinks = links.get(key);
+                        if (pageLinks != null) {
+                            pageLinks.forEach(link -> enqueue(link, depth - 1));
+                        } else {
+                            // Links were evicted from the cache, the page is fetched again without reporting it
+                            download(url, key, true);
+                        }
+                    }
+                    return;
+                }
+            }
         }
-        Queue<String> nextUrls = new ConcurrentLinkedQueue<>();
-        for (String url : urls) {
-            if (!used.add(url) || excludes.stream().anyMatch(url::contains)) {
-                continue;
+
+        private void download(String url, String key, boolean repeated) {
+            String host;
+            try {
+                host = URLUtils.getHost(url);
+            } catch (MalformedURLException e) {
+                listener.failed(url, e);
+                return;
             }
-            phaser.register();
-            downloaders.submit(() -> {
+            frontier.acquireUninterruptibly();
+            inFlight.incrementAndGet();
+            submit(host, () -> {
+                frontier.release();
                 try {
-                    final Document document = downloader.download(url);
-                    downloaded.add(url);
-                    phaser.register();
-                    extractors.submit(() -> {
-                        try {
-                            nextUrls.addAll(document.extractLinks());
-                        } catch (IOException e) {
-                            errors.put(url, e);
-                        } finally {
-                            phaser.arriveAndDeregister();
-                        }
-                    });
+                    Document document = downloader.download(url);
+                    if (!repeated) {
+                        listener.downloaded(url);
+                    }
+                    extract(url, key, document, repeated);
                 } catch (IOException e) {
-                    errors.put(url, e);
+                    if (!repeated) {
+                        listener.failed(url, e);
+                    }
                 } finally {
-                    phaser.arriveAndDeregister();
+                    finished();
                 }
             });
         }
-        phaser.arriveAndAwaitAdvance();
-        recursiveDownload(nextUrls, downloaded, errors, depth - 1, phaser, used, excludes);
+
+        private void extract(String url, String key, Document document, boolean repeated) {
+            // Pages of the last level are extracted as well, so their extraction errors are reported
+            inFlight.incrementAndGet();
+            extractors.submit(() -> {
+                try {
+                    List<String> pageLinks = document.extractLinks();
+                    if (remaining.get(key) < depth) {
+                        links.put(key, pageLinks);
+                    }
+                    // Marked before reading the depth, so a concurrent improvement is either seen here or uses the links
+                    completed.add(key);
+                    int current = remaining.get(key);
+                    for (String link : pageLinks) {
+                        enqueue(link, current - 1);
+                    }
+                } catch (IOException e) {
+                    if (!repeated) {
+                        listener.failed(url, e);
+                    }
+                } finally {
+                    finished();
+                }
+            });
+        }
+
+        void finished() {
+            if (inFlight.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
     }
 
     /**
@@ -13,12 +13,31 @@ import java.util.concurrent.Executors;
  */
 public class HelloUDPClient implements HelloClient {
 
+    private final boolean virtualThreads;
+
+    /**
+     * Creates client running request loops on platform threads.
+     */
+    public HelloUDPClient() {
+        this(false);
+    }
+
+    /**
+     * Creates client.
+     * @param virtualThreads - whether request loops should run on virtual threads
+     */
+    public HelloUDPClient(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void run(String host, int port, String prefix, int threads, int requests) {
-        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ExecutorService workers = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(threads);
         for (int i = 1; i <= threads; i++) {
             final int threadId = i;
             workers.execute(() -> {
@@ -0,0 +1,297 @@
+package info.kgeorgiy.ja.karpukhin.hello;
+
+import info.kgeorgiy.java.advanced.hello.HelloClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link HelloClient} interface using non-blocking UDP channels.
+ * Every logical thread owns a channel, all channels are served by one {@link Selector}.
+ * Every channel keeps a window of requests in flight and matches responses out of order.
+ * Lost requests are retransmitted after a timeout derived from the measured round-trip time.
+ */
+public class HelloUDPNonblockingClient implements HelloClient {
+    private static final long INITIAL_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MIN_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+
+    private final int window;
+    private long smoothedRtt;
+    private long rttVariation;
+    private long timeout;
+
+    /**
+     * Creates client that waits for every response before sending the next request.
+     */
+    public HelloUDPNonblockingClient() {
+        this(1);
+    }
+
+    /**
+     * Creates pipelined client.
+     * @param window - number of requests kept in flight by every thread
+     */
+    public HelloUDPNonblockingClient(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window should be positive");
+        }
+        this.window = window;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run(String host, int port, String prefix, int threads, int requests) {
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        if (address.isUnresolved()) {
+            System.err.println("Failed to resolve host: " + host);
+            return;
+        }
+        smoothedRtt = 0;
+        rttVariation = 0;
+        timeout = INITIAL_TIMEOUT;
+
+        List<Context> contexts = new ArrayList<>();
+        try (Selector selector = Selector.open()) {
+            ByteBuffer buffer = null;
+            for (int i = 1; i <= threads; i++) {
+                DatagramChannel channel = DatagramChannel.open();
+                Context context = new Context(channel, prefix + i + "_", requests);
+                contexts.add(context);
+                channel.configureBlocking(false);
+                channel.connect(address);
+                if (buffer == null) {
+                    buffer = ByteBuffer.allocate(channel.getOption(StandardSocketOptions.SO_RCVBUF));
+                }
+                context.key = channel.register(selector, SelectionKey.OP_READ, context);
+                context.fill();
+                context.send();
+            }
+            final ByteBuffer receiveBuffer = buffer;
+
+            int active = requests > 0 ? threads : 0;
+            while (active > 0 && !Thread.interrupted()) {
+                long now = System.nanoTime();
+                long wait = contexts.stream()
+                        .filter(context -> !context.isDone())
+                        .mapToLong(context -> context.nearestDeadline(now))
+                        .min().orElse(timeout);
+                selector.select(key -> {
+                    Context context = (Context) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            context.receive(receiveBuffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            context.send();
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Failed to send or receive packet: " + e.getMessage());
+                    }
+                }, Math.clamp(TimeUnit.NANOSECONDS.toMillis(wait), 1, TimeUnit.NANOSECONDS.toMillis(MAX_TIMEOUT)));
+
+                long time = System.nanoTime();
+                active = 0;
+                for (Context context : contexts) {
+                    if (context.isDone()) {
+                        continue;
+                    }
+                    active++;
+                    if (context.retransmitExpired(time)) {
+                        try {
+                            context.send();
+                        } catch (IOException e) {
+                            System.err.println("Failed to send packet: " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to create channel: " + e.getMessage());
+        } finally {
+            for (Context context : contexts) {
+                try {
+                    context.channel.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close channel: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void updateTimeout(long rtt) {
+        // Retransmission timeout estimation from RFC 6298
+        if (smoothedRtt == 0) {
+            smoothedRtt = rtt;
+            rttVariation = rtt / 2;
+        } else {
+            rttVariation = (3 * rttVariation + Math.abs(smoothedRtt - rtt)) / 4;
+            smoothedRtt = (7 * smoothedRtt + rtt) / 8;
+        }
+        timeout = Math.clamp(smoothedRtt + 4 * rttVariation, MIN_TIMEOUT, MAX_TIMEOUT);
+    }
+
+    private static class Request {
+        private final int id;
+        private final String text;
+        private final ByteBuffer bytes;
+        private long sentAt;
+        private long deadline;
+        private int attempts;
+        private boolean queued;
+
+        Request(int id, String text) {
+            this.id = id;
+            this.text = text;
+            this.bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private class Context {
+        private final DatagramChannel channel;
+        private final String prefix;
+        private final int requests;
+        private final Map<Integer, Request> inFlight = new HashMap<>();
+        private final Queue<Request> toSend = new ArrayDeque<>();
+        private SelectionKey key;
+        private int next = 1;
+        private int completed;
+
+        Context(DatagramChannel channel, String prefix, int requests) {
+            this.channel = channel;
+            this.prefix = prefix;
+            this.requests = requests;
+        }
+
+        boolean isDone() {
+            return completed >= requests;
+        }
+
+        long nearestDeadline(long now) {
+            return inFlight.values().stream()
+                    .filter(request -> !request.queued)
+                    .mapToLong(request -> request.deadline - now)
+                    .min().orElse(Long.MAX_VALUE);
+        }
+
+        void fill() {
+            while (inFlight.size() < window && next <= requests) {
+                Request request = new Request(next, prefix + next);
+                next++;
+                inFlight.put(request.id, request);
+                request.queued = true;
+                toSend.add(request);
+            }
+        }
+
+        boolean retransmitExpired(long now) {
+            boolean expired = false;
+            for (Request request : inFlight.values()) {
+                if (!request.queued && now - request.deadline >= 0) {
+                    request.queued = true;
+                    toSend.add(request);
+                    expired = true;
+                }
+            }
+            return expired;
+        }
+
+        void send() throws IOException {
+            while (!toSend.isEmpty()) {
+                Request request = toSend.peek();
+                if (channel.write(request.bytes.rewind()) == 0) {
+                    break;
+                }
+                toSend.poll();
+                request.queued = false;
+                request.attempts++;
+                request.sentAt = System.nanoTime();
+                request.deadline = request.sentAt + Math.min(timeout << Math.min(request.attempts - 1, 10), MAX_TIMEOUT);
+            }
+            key.interestOps(toSend.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        private int parseId(String response) {
+            // The id is the whole number after the prefix, so prefix1_12 is not taken for prefix1_1
+            for (int start = response.indexOf(prefix); start >= 0; start = response.indexOf(prefix, start + 1)) {
+                int from = start + prefix.length();
+                int to = from;
+                while (to < response.length() && Character.isDigit(response.charAt(to))) {
+                    to++;
+                }
+                if (to > from && to - from <= 9) {
+                    return Integer.parseInt(response, from, to, 10);
+                }
+            }
+            return -1;
+        }
+
+        void receive(ByteBuffer buffer) throws IOException {
+            try {
+                channel.read(buffer.clear());
+            } catch (PortUnreachableException e) {
+                return;
+            }
+            String response = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+            // Responses may come out of order or twice, so they are matched by the exact id of a request in flight
+            Request matched = inFlight.get(parseId(response));
+            if (matched == null || matched.attempts == 0) {
+                return;
+            }
+            // Karn's rule: retransmitted requests give ambiguous samples
+            if (matched.attempts == 1) {
+                updateTimeout(System.nanoTime() - matched.sentAt);
+            }
+            inFlight.remove(matched.id);
+            toSend.remove(matched);
+            completed++;
+            if (isDone()) {
+                key.cancel();
+                return;
+            }
+            fill();
+            send();
+        }
+    }
+
+    /**
+     * Main method for running the client.
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args == null || args.length < 5 || args.length > 6) {
+            System.err.println("Usage: HelloUDPNonblockingClient <host> <port> <prefix> <threads> <requests> [window]");
+            return;
+        }
+
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        String prefix = args[2];
+        int threads = Integer.parseInt(args[3]);
+        int requests = Integer.parseInt(args[4]);
+        int window = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+
+        try {
+            HelloUDPNonblockingClient client = new HelloUDPNonblockingClient(window);
+            client.run(host, port, prefix, threads, requests);
+        } catch (Exception e) {
+            System.err.println("Error while running the client: " + e.getMessage());
+        }
+    }
+}
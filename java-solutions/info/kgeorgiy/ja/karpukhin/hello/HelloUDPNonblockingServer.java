@@ -0,0 +1,194 @@
+package info.kgeorgiy.ja.karpukhin.hello;
+
+import info.kgeorgiy.java.advanced.hello.NewHelloServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link NewHelloServer} interface using non-blocking UDP channels.
+ * All ports are served by one {@link Selector} thread, responses are built by a bounded pool of workers.
+ */
+public class HelloUDPNonblockingServer implements NewHelloServer {
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+
+    private Selector selector;
+    private ExecutorService listener;
+    private ExecutorService workers;
+    private final List<DatagramChannel> channels = new ArrayList<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start(int threads, Map<Integer, String> ports) {
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            System.err.println("Failed to open selector: " + e.getMessage());
+            return;
+        }
+        for (Map.Entry<Integer, String> entry : ports.entrySet()) {
+            try {
+                DatagramChannel channel = DatagramChannel.open();
+                channels.add(channel);
+                channel.bind(new InetSocketAddress(entry.getKey()));
+                channel.configureBlocking(false);
+                Context context = new Context(channel, entry.getValue(), channel.getOption(StandardSocketOptions.SO_RCVBUF));
+                context.key = channel.register(selector, SelectionKey.OP_READ, context);
+            } catch (IOException e) {
+                System.err.println("Failed to create channel: " + e.getMessage());
+            }
+        }
+        // Packets that do not fit into the queue are dropped, as the network would do
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), new ThreadPoolExecutor.DiscardPolicy());
+        listener = Executors.newSingleThreadExecutor();
+        listener.execute(this::listen);
+    }
+
+    private void listen() {
+        try {
+            while (!Thread.interrupted() && selector.isOpen()) {
+                selector.select(key -> {
+                    Context context = (Context) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            context.receive();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            context.send();
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Failed to receive or send packet: " + e.getMessage());
+                    }
+                });
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to select channels: " + e.getMessage());
+        } catch (ClosedSelectorException ignored) {
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+            for (DatagramChannel channel : channels) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close channel: " + e.getMessage());
+        }
+        if (listener != null) {
+            listener.close();
+        }
+        if (workers != null) {
+            workers.close();
+        }
+    }
+
+    private record Response(ByteBuffer data, SocketAddress address) {
+    }
+
+    private class Context {
+        private final DatagramChannel channel;
+        private final ResponseTemplate template;
+        private final ByteBuffer buffer;
+        private final Queue<Response> responses = new ArrayDeque<>();
+        private SelectionKey key;
+
+        Context(DatagramChannel channel, String template, int bufferSize) {
+            this.channel = channel;
+            this.template = new ResponseTemplate(template);
+            this.buffer = ByteBuffer.allocate(bufferSize);
+        }
+
+        void receive() throws IOException {
+            SocketAddress address = channel.receive(buffer.clear());
+            if (address == null) {
+                return;
+            }
+            if (template.length(buffer.position()) > MAX_DATAGRAM_SIZE) {
+                // Such a response cannot be sent at all, so it is not built
+                return;
+            }
+            ByteBuffer request = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), buffer.position()));
+            workers.execute(() -> {
+                ByteBuffer response = ByteBuffer.allocate(template.length(request.remaining()));
+                template.apply(request, response);
+                enqueue(new Response(response.flip(), address));
+            });
+        }
+
+        synchronized void enqueue(Response response) {
+            if (responses.size() >= QUEUE_CAPACITY || !key.isValid()) {
+                return;
+            }
+            responses.add(response);
+            if (responses.size() == 1) {
+                try {
+                    key.interestOpsOr(SelectionKey.OP_WRITE);
+                    selector.wakeup();
+                } catch (CancelledKeyException ignored) {
+                }
+            }
+        }
+
+        synchronized void send() {
+            while (!responses.isEmpty()) {
+                Response response = responses.peek();
+                try {
+                    if (channel.send(response.data(), response.address()) == 0) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    // A failed datagram is dropped, otherwise it would be retried forever
+                    System.err.println("Failed to send packet: " + e.getMessage());
+                }
+                responses.poll();
+            }
+            key.interestOpsAnd(~SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Main method for running the server.
+     * @param args - command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: HelloUDPNonblockingServer <port number> <number of worker threads>");
+            return;
+        }
+
+        int port = Integer.parseInt(args[0]);
+        int threads = Integer.parseInt(args[1]);
+
+        try (HelloUDPNonblockingServer server = new HelloUDPNonblockingServer()) {
+            server.start(threads, Map.of(port, "Hello, $"));
+        } catch (Exception e) {
+            System.err.println("Error while running the server: " + e.getMessage());
+        }
+    }
+}
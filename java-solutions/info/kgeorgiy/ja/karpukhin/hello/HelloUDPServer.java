@@ -2,65 +2,213 @@ package info.kgeorgiy.ja.karpukhin.hello;
 
 import info.kgeorgiy.java.advanced.hello.NewHelloServer;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.SocketException;
-import java.nio.charset.StandardCharsets;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 /**
  * Implementation of {@link NewHelloServer} interface using UDP protocol.
+ * Responses are assembled from precompiled template segments in reused direct buffers.
+ * Every port exposes {@link PortMetrics} through {@link #metrics()} and a JMX MBean.
  */
 public class HelloUDPServer implements NewHelloServer {
 
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    private static final String MBEAN_NAME = "info.kgeorgiy.ja.karpukhin.hello:type=HelloUDPServer,port=";
+
+    private final boolean virtualThreads;
+    private final int socketsPerPort;
+    private final int receiveBufferSize;
     private ExecutorService workers;
-    private final List<DatagramSocket> sockets = new ArrayList<>();
+    private ScheduledExecutorService reporter;
+    private final List<DatagramChannel> channels = new ArrayList<>();
+    private final Map<Integer, PortMetrics> metrics = new ConcurrentHashMap<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    /**
+     * Creates server running receivers on platform threads.
+     */
+    public HelloUDPServer() {
+        this(false);
+    }
+
+    /**
+     * Creates server with one socket per port.
+     * @param virtualThreads - whether receivers should run on virtual threads
+     */
+    public HelloUDPServer(boolean virtualThreads) {
+        this(virtualThreads, 1, 0);
+    }
+
+    /**
+     * Creates server.
+     * @param virtualThreads - whether receivers should run on virtual threads
+     * @param socketsPerPort - number of sockets bound to every port with {@code SO_REUSEPORT}, each with its own receiver
+     * @param receiveBufferSize - socket receive buffer size in bytes, or zero for the system default
+     */
+    public HelloUDPServer(boolean virtualThreads, int socketsPerPort, int receiveBufferSize) {
+        if (socketsPerPort <= 0) {
+            throw new IllegalArgumentException("Sockets per port number should be positive");
+        }
+        if (receiveBufferSize < 0) {
+            throw new IllegalArgumentException("Receive buffer size should not be negative");
+        }
+        this.virtualThreads = virtualThreads;
+        this.socketsPerPort = socketsPerPort;
+        this.receiveBufferSize = receiveBufferSize;
+    }
 
     /**
      * {@inheritDoc}
      */
     @Override
     public void start(int threads, Map<Integer, String> ports) {
-        workers = Executors.newFixedThreadPool(threads + ports.size());
+        workers = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(threads + ports.size() * socketsPerPort);
         for (Map.Entry<Integer, String> entry : ports.entrySet()) {
-            try {
-                DatagramSocket socket = new DatagramSocket(entry.getKey());
-                sockets.add(socket);
-                socket.setSoTimeout(100);
-                byte[] buffer = new byte[socket.getReceiveBufferSize()];
-                workers.execute(() -> {
-                    while (!Thread.interrupted() && !socket.isClosed()) {
-                        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                        try {
-                            socket.receive(packet);
-                            String request = new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8);
-                            String response = entry.getValue().replace("$", request);
-                            byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
-                            DatagramPacket responsePacket = new DatagramPacket(responseBytes, responseBytes.length, packet.getAddress(), packet.getPort());
-                            socket.send(responsePacket);
-                        } catch (IOException e) {
-                            System.err.println("Failed to receive or send packet: " + e.getMessage());
+            ResponseTemplate template = new ResponseTemplate(entry.getValue());
+            PortMetrics portMetrics = new PortMetrics(entry.getKey());
+            // The kernel spreads flows between sockets sharing the port, every socket gets its own receiver
+            int sockets = socketsPerPort;
+            for (int i = 0; i < sockets; i++) {
+                try {
+                    DatagramChannel channel = DatagramChannel.open();
+                    channels.add(channel);
+                    if (sockets > 1) {
+                        if (channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                            channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                        } else {
+                            System.err.println("SO_REUSEPORT is not supported, using one socket per port");
+                            sockets = 1;
                         }
                     }
-                });
-            } catch (SocketException e) {
-                System.err.println("Failed to create socket: " + e.getMessage());
+                    if (receiveBufferSize > 0) {
+                        channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+                    }
+                    channel.bind(new InetSocketAddress(entry.getKey()));
+                    if (metrics.putIfAbsent(entry.getKey(), portMetrics) == null) {
+                        register(entry.getKey(), portMetrics);
+                    }
+                    workers.execute(() -> serve(channel, template, portMetrics));
+                } catch (IOException e) {
+                    System.err.println("Failed to create channel: " + e.getMessage());
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void serve(DatagramChannel channel, ResponseTemplate template, PortMetrics portMetrics) {
+        // A datagram never exceeds the maximal size, unlike the configurable socket buffer
+        ByteBuffer request = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+        ByteBuffer response = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+        while (!Thread.interrupted() && channel.isOpen()) {
+            SocketAddress address;
+            try {
+                address = channel.receive(request.clear());
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                portMetrics.receiveFailed(e);
+                continue;
+            }
+            long received = System.nanoTime();
+            request.flip();
+            portMetrics.received(request.remaining());
+            int length = template.length(request.remaining());
+            if (length > MAX_DATAGRAM_SIZE) {
+                portMetrics.dropped();
+                continue;
+            }
+            template.apply(request, response.clear());
+            try {
+                int sent = channel.send(response.flip(), address);
+                portMetrics.sent(sent, System.nanoTime() - received);
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                portMetrics.sendFailed(e);
             }
         }
     }
 
+    /**
+     * Returns metrics of the ports started by {@link #start(int, Map)}.
+     * @return metrics by port number
+     */
+    public Map<Integer, PortMetrics> metrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * Periodically passes snapshots of all port metrics to the consumer until the server is closed.
+     * @param period - reporting period
+     * @param unit - time unit of the period
+     * @param consumer - snapshots consumer
+     */
+    public synchronized void reportMetrics(long period, TimeUnit unit, Consumer<List<PortMetrics.Snapshot>> consumer) {
+        if (reporter == null) {
+            reporter = Executors.newSingleThreadScheduledExecutor();
+        }
+        reporter.scheduleAtFixedRate(
+                () -> consumer.accept(metrics.values().stream().map(PortMetrics::snapshot).toList()),
+                period, period, unit);
+    }
+
+    private void register(int port, PortMetrics portMetrics) {
+        try {
+            ObjectName name = new ObjectName(MBEAN_NAME + port);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(portMetrics, name);
+            registered.add(name);
+        } catch (JMException e) {
+            System.err.println("Failed to register metrics: " + e.getMessage());
+        }
+    }
+
+    private static void unregister(ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            System.err.println("Failed to unregister metrics: " + e.getMessage());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void close() {
-        sockets.forEach(DatagramSocket::close);
+        for (DatagramChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close channel: " + e.getMessage());
+            }
+        }
         workers.close();
+        synchronized (this) {
+            if (reporter != null) {
+                reporter.close();
+            }
+        }
+        // Another server sharing the port may own its MBean, only our own registrations are removed
+        registered.forEach(HelloUDPServer::unregister);
+        registered.clear();
+        metrics.clear();
     }
 
     /**
@@ -82,4 +230,4 @@ public class HelloUDPServer implements NewHelloServer {
             System.err.println("Error while running the server: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
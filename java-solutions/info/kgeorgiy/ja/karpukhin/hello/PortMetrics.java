@@ -0,0 +1,128 @@
+package info.kgeorgiy.ja.karpukhin.hello;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and service-time histogram of one server port.
+ * Errors are counted, and at most one error per second is printed to {@code System.err}.
+ */
+public class PortMetrics implements PortMetricsMBean {
+    private static final long LOG_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final int port;
+    private final LongAdder packetsReceived = new LongAdder();
+    private final LongAdder packetsSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder receiveErrors = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LongAdder droppedPackets = new LongAdder();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final AtomicLong lastLog = new AtomicLong(System.nanoTime() - LOG_INTERVAL);
+
+    /**
+     * Point-in-time copy of port metrics.
+     */
+    public record Snapshot(int port, long packetsReceived, long packetsSent, long bytesReceived, long bytesSent,
+                           long receiveErrors, long sendErrors, long droppedPackets,
+                           long serviceTimeMedianNanos, long serviceTime99thPercentileNanos, long serviceTimeMaxNanos) {
+    }
+
+    PortMetrics(int port) {
+        this.port = port;
+    }
+
+    void received(int bytes) {
+        packetsReceived.increment();
+        bytesReceived.add(bytes);
+    }
+
+    void sent(int bytes, long serviceNanos) {
+        packetsSent.increment();
+        bytesSent.add(bytes);
+        serviceTime.record(serviceNanos);
+    }
+
+    void receiveFailed(IOException e) {
+        receiveErrors.increment();
+        log("receive", e);
+    }
+
+    void sendFailed(IOException e) {
+        sendErrors.increment();
+        droppedPackets.increment();
+        log("send", e);
+    }
+
+    void dropped() {
+        droppedPackets.increment();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(port, getPacketsReceived(), getPacketsSent(), getBytesReceived(), getBytesSent(),
+                getReceiveErrors(), getSendErrors(), getDroppedPackets(),
+                getServiceTimeMedianNanos(), getServiceTime99thPercentileNanos(), getServiceTimeMaxNanos());
+    }
+
+    private void log(String operation, IOException e) {
+        long now = System.nanoTime();
+        long last = lastLog.get();
+        if (now - last >= LOG_INTERVAL && lastLog.compareAndSet(last, now)) {
+            System.err.println("Port " + port + ": failed to " + operation + " packet: " + e.getMessage()
+                    + " (" + getReceiveErrors() + " receive and " + getSendErrors() + " send errors so far)");
+        }
+    }
+
+    @Override
+    public long getPacketsReceived() {
+        return packetsReceived.sum();
+    }
+
+    @Override
+    public long getPacketsSent() {
+        return packetsSent.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getReceiveErrors() {
+        return receiveErrors.sum();
+    }
+
+    @Override
+    public long getSendErrors() {
+        return sendErrors.sum();
+    }
+
+    @Override
+    public long getDroppedPackets() {
+        return droppedPackets.sum();
+    }
+
+    @Override
+    public long getServiceTimeMedianNanos() {
+        return serviceTime.quantile(0.5);
+    }
+
+    @Override
+    public long getServiceTime99thPercentileNanos() {
+        return serviceTime.quantile(0.99);
+    }
+
+    @Override
+    public long getServiceTimeMaxNanos() {
+        return serviceTime.max();
+    }
+}
@@ -0,0 +1,26 @@
+package info.kgeorgiy.ja.karpukhin.hello;
+
+/**
+ * JMX view of {@link PortMetrics}.
+ */
+public interface PortMetricsMBean {
+    long getPacketsReceived();
+
+    long getPacketsSent();
+
+    long getBytesReceived();
+
+    long getBytesSent();
+
+    long getReceiveErrors();
+
+    long getSendErrors();
+
+    long getDroppedPackets();
+
+    long getServiceTimeMedianNanos();
+
+    long getServiceTime99thPercentileNanos();
+
+    long getServiceTimeMaxNanos();
+}
@@ -0,0 +1,42 @@
+package info.kgeorgiy.ja.karpukhin.hello;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Response template compiled into UTF-8 segments separated by {@code $} placeholders.
+ * UTF-8 never uses the {@code $} byte inside multibyte characters, so splitting encoded text is safe.
+ */
+class ResponseTemplate {
+    private final byte[][] segments;
+    private final int segmentsLength;
+
+    ResponseTemplate(String template) {
+        segments = Arrays.stream(template.split("\\$", -1))
+                .map(segment -> segment.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+        segmentsLength = Arrays.stream(segments).mapToInt(segment -> segment.length).sum();
+    }
+
+    /**
+     * Returns response length for a request of the given length.
+     */
+    int length(int requestLength) {
+        return segmentsLength + (segments.length - 1) * requestLength;
+    }
+
+    /**
+     * Puts response into {@code response}, substituting remaining bytes of {@code request} for every placeholder.
+     * Position of {@code request} is left unchanged.
+     */
+    void apply(ByteBuffer request, ByteBuffer response) {
+        int start = request.position();
+        response.put(segments[0]);
+        for (int i = 1; i < segments.length; i++) {
+            response.put(request);
+            request.position(start);
+            response.put(segments[i]);
+        }
+    }
+}
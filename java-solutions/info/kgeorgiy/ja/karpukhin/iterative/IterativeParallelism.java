@@ -3,74 +3,212 @@ package info.kgeorgiy.ja.karpukhin.iterative;
 import info.kgeorgiy.java.advanced.iterative.NewScalarIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.*;
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.stream.IntStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.*;
 
 public class IterativeParallelism implements NewScalarIP {
+    private static final int INITIAL_GRAIN = 16;
+    private static final long TARGET_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
     private final ParallelMapper parallelMapper;
+    private final ExecutorService executor;
+    private final int inlineThreshold;
 
+    /**
+     * Creates instance running parts on the shared pool of daemon platform threads.
+     */
     public IterativeParallelism() {
-        parallelMapper = null;
+        this(false, 0);
+    }
+
+    /**
+     * Creates instance running parts on a shared executor.
+     * @param virtualThreads - whether parts should run on virtual threads instead of the shared platform pool
+     * @param inlineThreshold - number of elements below which the whole call runs on the caller thread
+     */
+    public IterativeParallelism(boolean virtualThreads, int inlineThreshold) {
+        if (inlineThreshold < 0) {
+            throw new IllegalArgumentException("Inline threshold should not be negative");
+        }
+        this.parallelMapper = null;
+        this.executor = virtualThreads ? SharedExecutors.VIRTUAL : SharedExecutors.PLATFORM;
+        this.inlineThreshold = inlineThreshold;
     }
 
     public IterativeParallelism(ParallelMapper parallelMapper) {
         this.parallelMapper = parallelMapper;
+        this.executor = null;
+        this.inlineThreshold = 0;
+    }
+
+    // Created on first use only, so instances with a mapper never start pool threads
+    private static final class SharedExecutors {
+        private static final ExecutorService PLATFORM = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        private static final ExecutorService VIRTUAL = Executors.newVirtualThreadPerTaskExecutor();
     }
 
-    private <T> List<List<? extends T>> split(int threads, List<? extends T> values, int step) {
-        List<List<? extends T>> result = new ArrayList<>();
-        List<? extends T> filteredValues = IntStream.iterate(0, i -> i < values.size(), i -> i + step)
-                .mapToObj(values::get).toList();
-        int size = filteredValues.size() / threads;
-        int mod = filteredValues.size() % threads;
-        int left = 0;
-        for (int i = 0; i < threads; i++) {
-            int right = left + size + (mod > 0 ? 1 : 0);
-            mod--;
-            result.add(filteredValues.subList(left, right));
-            left = right;
+    /**
+     * Half-open range of indices in the strided sequence.
+     */
+    private record Range(int from, int to) {
+        int size() {
+            return to - from;
         }
-        return result;
     }
 
-    private <T, R> List<R> executeInThreads(int threads, List<? extends T> values,
-                                            Function<List<? extends T>, R> function, int step) throws InterruptedException {
-        if (threads <= 0) {
-            throw new IllegalArgumentException("Threads number should be positive");
+    private record Part<R>(int from, R result) {
+    }
+
+    /**
+     * Hands out consecutive ranges to the workers pulling them.
+     * A range is sized to take about {@code TARGET_NANOS} by the measured cost of the previous ranges,
+     * but never exceeds half of the remaining work divided by the number of workers.
+     */
+    private static final class Schedule {
+        private final int count;
+        private final int workers;
+        private final AtomicInteger cursor = new AtomicInteger();
+        private volatile long nanosPerElement;
+
+        Schedule(int count, int workers) {
+            this.count = count;
+            this.workers = workers;
         }
-        if (values == null) {
-            throw new IllegalArgumentException("Values list should not be empty");
+
+        Range next() {
+            while (true) {
+                int from = cursor.get();
+                if (from >= count) {
+                    return null;
+                }
+                int remaining = count - from;
+                long cost = nanosPerElement;
+                long wanted = cost == 0 ? INITIAL_GRAIN : TARGET_NANOS / cost;
+                int size = (int) Math.clamp(wanted, 1, Math.max(1, remaining / (2L * workers)));
+                if (cursor.compareAndSet(from, from + size)) {
+                    return new Range(from, from + size);
+                }
+            }
+        }
+
+        void measured(Range range, long nanos) {
+            long cost = Math.max(1, nanos / range.size());
+            long previous = nanosPerElement;
+            nanosPerElement = previous == 0 ? cost : (3 * previous + cost) / 4;
+        }
+
+        void stop() {
+            cursor.set(count);
+        }
+
+        <R> List<Part<R>> drain(Function<Range, R> function) {
+            List<Part<R>> parts = new ArrayList<>();
+            try {
+                for (Range range = next(); range != null; range = next()) {
+                    long start = System.nanoTime();
+                    parts.add(new Part<>(range.from(), function.apply(range)));
+                    measured(range, System.nanoTime() - start);
+                }
+            } catch (RuntimeException | Error e) {
+                stop();
+                throw e;
+            }
+            return parts;
         }
+    }
+
+    private static int stridedSize(int size, int step) {
         if (step <= 0) {
             throw new IllegalArgumentException("Step should be positive");
         }
-        int myThreads = Math.min(threads, (values.size() + step - 1) / step);
-        if (parallelMapper == null) {
-            List<Thread> threadList = new ArrayList<>();
-            List<R> result = new ArrayList<>(Collections.nCopies(myThreads, null));
-            List<List<? extends T>> parts = split(myThreads, values, step);
-
-            IntStream.iterate(0, i -> i < myThreads, i -> i + 1)
-                    .forEach(i -> {
-                        final int index = i;
-                        threadList.add(new Thread(() -> result.set(index, function.apply(parts.get(index)))));
-                        threadList.get(i).start();
-                    });
-
-            for (Thread thread : threadList) {
-                try {
-                    thread.join();
-                } catch (InterruptedException e) {
-                    thread.interrupt();
-                    throw new InterruptedException("Thread was interrupted");
+        return Math.ceilDiv(size, step);
+    }
+
+    private <T, R> List<R> executeInThreads(int threads, List<? extends T> values,
+                                            Function<List<? extends T>, R> function, int step) throws InterruptedException {
+        if (values == null) {
+            throw new IllegalArgumentException("Values list should not be empty");
+        }
+        int count = stridedSize(values.size(), step);
+        if (!(values instanceof RandomAccess)) {
+            // One sequential pass instead of a quadratic number of get calls
+            List<T> copy = new ArrayList<>(count);
+            Iterator<? extends T> iterator = values.iterator();
+            for (int i = 0; iterator.hasNext(); i++) {
+                T value = iterator.next();
+                if (i % step == 0) {
+                    copy.add(value);
                 }
             }
-            return result;
+            return executeInThreads(threads, copy, function, 1);
+        }
+        return execute(threads, count, range ->
+                function.apply(new StridedList<>(values, range.from() * step, step, range.size())));
+    }
+
+    private <R> List<R> execute(int threads, int count, Function<Range, R> function) throws InterruptedException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Threads number should be positive");
+        }
+        int myThreads = count < inlineThreshold ? 1 : Math.max(1, Math.min(threads, count));
+        if (myThreads == 1) {
+            return Collections.singletonList(function.apply(new Range(0, count)));
+        }
+        Schedule schedule = new Schedule(count, myThreads);
+        List<List<Part<R>>> drained;
+        if (parallelMapper != null) {
+            drained = parallelMapper.map(worker -> worker.drain(function), Collections.nCopies(myThreads, schedule));
         } else {
-            return parallelMapper.map(function, split(myThreads, values, step));
+            drained = drainInPool(schedule, myThreads, function);
+        }
+        return drained.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingInt(Part::from))
+                .map(Part::result)
+                .toList();
+    }
+
+    private <R> List<List<Part<R>>> drainInPool(Schedule schedule, int workers, Function<Range, R> function) throws InterruptedException {
+        List<Future<List<Part<R>>>> futures = new ArrayList<>();
+        for (int i = 1; i < workers; i++) {
+            futures.add(executor.submit(() -> schedule.drain(function)));
         }
+        List<List<Part<R>>> result = new ArrayList<>(workers);
+        try {
+            // The caller pulls ranges as well instead of waiting idle
+            result.add(schedule.drain(function));
+            for (Future<List<Part<R>>> future : futures) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            schedule.stop();
+            futures.forEach(future -> future.cancel(true));
+            throw new InterruptedException("Thread was interrupted");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw (Error) e.getCause();
+        } catch (RuntimeException | Error e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return result;
     }
 
     /**
@@ -95,8 +233,7 @@ public class IterativeParallelism implements NewScalarIP {
      */
     @Override
     public <T> boolean all(int threads, List<? extends T> values, Predicate<? super T> predicate, int step) throws InterruptedException {
-        return executeInThreads(threads, values, part -> part.stream().allMatch(predicate), step)
-                .stream().allMatch(Boolean::booleanValue);
+        return !find(threads, values, predicate.negate(), step);
     }
 
     /**
@@ -104,7 +241,25 @@ public class IterativeParallelism implements NewScalarIP {
      */
     @Override
     public <T> boolean any(int threads, List<? extends T> values, Predicate<? super T> predicate, int step) throws InterruptedException {
-        return !all(threads, values, predicate.negate(), step);
+        return find(threads, values, predicate, step);
+    }
+
+    private <T> boolean find(int threads, List<? extends T> values, Predicate<? super T> predicate, int step) throws InterruptedException {
+        // The first match settles the answer, other parts stop as soon as they see the flag
+        AtomicBoolean found = new AtomicBoolean();
+        executeInThreads(threads, values, part -> {
+            for (T value : part) {
+                if (found.get()) {
+                    break;
+                }
+                if (predicate.test(value)) {
+                    found.set(true);
+                    break;
+                }
+            }
+            return null;
+        }, step);
+        return found.get();
     }
 
     /**
@@ -115,4 +270,430 @@ public class IterativeParallelism implements NewScalarIP {
         return executeInThreads(threads, values, part -> (int) part.stream().filter(predicate).count(), step)
                 .stream().mapToInt(Integer::intValue).sum();
     }
-}
\ No newline at end of file
+
+    /**
+     * Reduces every {@code step}-th value with the monoid.
+     * @param threads - number of parallel parts
+     * @param values - values to reduce
+     * @param monoid - monoid to use
+     * @param step - step between values
+     * @return reduction result, or the identity if there are no values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> T reduce(int threads, List<? extends T> values, Monoid<T> monoid, int step) throws InterruptedException {
+        return mapReduce(threads, values, Function.identity(), monoid, step);
+    }
+
+    /**
+     * Maps every {@code step}-th value and reduces the results with the monoid.
+     * @param threads - number of parallel parts
+     * @param values - values to reduce
+     * @param lift - mapping function
+     * @param monoid - monoid to use
+     * @param step - step between values
+     * @return reduction result, or the identity if there are no values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T, R> R mapReduce(int threads, List<? extends T> values, Function<? super T, ? extends R> lift,
+                              Monoid<R> monoid, int step) throws InterruptedException {
+        return reduce(executeInThreads(threads, values, part -> {
+            R result = monoid.identity();
+            for (T value : part) {
+                result = monoid.operator().apply(result, lift.apply(value));
+            }
+            return result;
+        }, step), monoid);
+    }
+
+    private static <R> R reduce(List<R> values, Monoid<R> monoid) {
+        R result = monoid.identity();
+        for (R value : values) {
+            result = monoid.operator().apply(result, value);
+        }
+        return result;
+    }
+
+    /**
+     * Concatenates string representations of every {@code step}-th value.
+     * @param threads - number of parallel parts
+     * @param values - values to join
+     * @param step - step between values
+     * @return concatenated string
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public String join(int threads, List<?> values, int step) throws InterruptedException {
+        StringBuilder result = new StringBuilder();
+        executeInThreads(threads, values, part -> {
+            StringBuilder builder = new StringBuilder();
+            part.forEach(builder::append);
+            return builder;
+        }, step).forEach(result::append);
+        return result.toString();
+    }
+
+    /**
+     * Returns every {@code step}-th value matching the predicate, keeping their order.
+     * @param threads - number of parallel parts
+     * @param values - values to filter
+     * @param predicate - filter predicate
+     * @param step - step between values
+     * @return list of matching values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate, int step) throws InterruptedException {
+        return concat(executeInThreads(threads, values, part -> {
+            List<T> result = new ArrayList<>();
+            for (T value : part) {
+                if (predicate.test(value)) {
+                    result.add(value);
+                }
+            }
+            return result;
+        }, step));
+    }
+
+    /**
+     * Applies the function to every {@code step}-th value, keeping their order.
+     * @param threads - number of parallel parts
+     * @param values - values to map
+     * @param f - mapping function
+     * @param step - step between values
+     * @return list of mapped values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T, U> List<U> map(int threads, List<? extends T> values, Function<? super T, ? extends U> f, int step) throws InterruptedException {
+        return concat(executeInThreads(threads, values, part -> {
+            List<U> result = new ArrayList<>(part.size());
+            for (T value : part) {
+                result.add(f.apply(value));
+            }
+            return result;
+        }, step));
+    }
+
+    private static <T> List<T> concat(List<List<T>> parts) {
+        if (parts.size() == 1) {
+            return parts.getFirst();
+        }
+        List<T> result = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * Reduces every {@code step}-th value between position and limit of the buffer.
+     * The buffer position is not changed.
+     * @param threads - number of parallel parts
+     * @param values - values to reduce
+     * @param identity - identity of the operator
+     * @param operator - associative operator
+     * @param step - step between values
+     * @return reduction result, or the identity if there are no values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public int reduce(int threads, IntBuffer values, int identity, IntBinaryOperator operator, int step) throws InterruptedException {
+        int base = values.position();
+        int result = identity;
+        for (int value : execute(threads, stridedSize(values.remaining(), step), range -> {
+            int part = identity;
+            for (int i = range.from(); i < range.to(); i++) {
+                part = operator.applyAsInt(part, values.get(base + i * step));
+            }
+            return part;
+        })) {
+            result = operator.applyAsInt(result, value);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether every {@code step}-th value between position and limit of the buffer matches the predicate.
+     * @param threads - number of parallel parts
+     * @param values - values to test
+     * @param predicate - predicate to test
+     * @param step - step between values
+     * @return whether all values match
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public boolean all(int threads, IntBuffer values, IntPredicate predicate, int step) throws InterruptedException {
+        int base = values.position();
+        return !find(threads, stridedSize(values.remaining(), step), i -> !predicate.test(values.get(base + i * step)));
+    }
+
+    /**
+     * Checks whether any {@code step}-th value between position and limit of the buffer matches the predicate.
+     * @param threads - number of parallel parts
+     * @param values - values to test
+     * @param predicate - predicate to test
+     * @param step - step between values
+     * @return whether some value matches
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public boolean any(int threads, IntBuffer values, IntPredicate predicate, int step) throws InterruptedException {
+        int base = values.position();
+        return find(threads, stridedSize(values.remaining(), step), i -> predicate.test(values.get(base + i * step)));
+    }
+
+    /**
+     * Counts {@code step}-th values between position and limit of the buffer matching the predicate.
+     * @param threads - number of parallel parts
+     * @param values - values to test
+     * @param predicate - predicate to test
+     * @param step - step between values
+     * @return number of matching values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public int count(int threads, IntBuffer values, IntPredicate predicate, int step) throws InterruptedException {
+        int base = values.position();
+        return countMatching(threads, stridedSize(values.remaining(), step), i -> predicate.test(values.get(base + i * step)));
+    }
+
+    /**
+     * Same as {@link #reduce(int, IntBuffer, int, IntBinaryOperator, int)} for an array.
+     */
+    public int reduce(int threads, int[] values, int identity, IntBinaryOperator operator, int step) throws InterruptedException {
+        return reduce(threads, IntBuffer.wrap(values), identity, operator, step);
+    }
+
+    /**
+     * Same as {@link #all(int, IntBuffer, IntPredicate, int)} for an array.
+     */
+    public boolean all(int threads, int[] values, IntPredicate predicate, int step) throws InterruptedException {
+        return all(threads, IntBuffer.wrap(values), predicate, step);
+    }
+
+    /**
+     * Same as {@link #any(int, IntBuffer, IntPredicate, int)} for an array.
+     */
+    public boolean any(int threads, int[] values, IntPredicate predicate, int step) throws InterruptedException {
+        return any(threads, IntBuffer.wrap(values), predicate, step);
+    }
+
+    /**
+     * Same as {@link #count(int, IntBuffer, IntPredicate, int)} for an array.
+     */
+    public int count(int threads, int[] values, IntPredicate predicate, int step) throws InterruptedException {
+        return count(threads, IntBuffer.wrap(values), predicate, step);
+    }
+
+    /**
+     * Reduces every {@code step}-th value between position and limit of the buffer.
+     * The buffer position is not changed.
+     * @param threads - number of parallel parts
+     * @param values - values to reduce
+     * @param identity - identity of the operator
+     * @param operator - associative operator
+     * @param step - step between values
+     * @return reduction result, or the identity if there are no values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public long reduce(int threads, LongBuffer values, long identity, LongBinaryOperator operator, int step) throws InterruptedException {
+        int base = values.position();
+        long result = identity;
+        for (long value : execute(threads, stridedSize(values.remaining(), step), range -> {
+            long part = identity;
+            for (int i = range.from(); i < range.to(); i++) {
+                part = operator.applyAsLong(part, values.get(base + i * step));
+            }
+            return part;
+        })) {
+            result = operator.applyAsLong(result, value);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether every {@code step}-th value between position and limit of the buffer matches the predicate.
+     * @param threads - number of parallel parts
+     * @param values - values to test
+     * @param predicate - predicate to test
+     * @param step - step between values
+     * @return whether all values match
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public boolean all(int threads, LongBuffer values, LongPredicate predicate, int step) throws InterruptedException {
+        int base = values.position();
+        return !find(threads, stridedSize(values.remaining(), step), i -> !predicate.test(values.get(base + i * step)));
+    }
+
+    /**
+     * Checks whether any {@code step}-th value between position and limit of the buffer matches the predicate.
+     * @param threads - number of parallel parts
+     * @param values - values to test
+     * @param predicate - predicate to test
+     * @param step - step between values
+     * @return whether some value matches
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public boolean any(int threads, LongBuffer values, LongPredicate predicate, int step) throws InterruptedException {
+        int base = values.position();
+        return find(threads, stridedSize(values.remaining(), step), i -> predicate.test(values.get(base + i * step)));
+    }
+
+    /**
+     * Counts {@code step}-th values between position and limit of the buffer matching the predicate.
+     * @param threads - number of parallel parts
+     * @param values - values to test
+     * @param predicate - predicate to test
+     * @param step - step between values
+     * @return number of matching values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public int count(int threads, LongBuffer values, LongPredicate predicate, int step) throws InterruptedException {
+        int base = values.position();
+        return countMatching(threads, stridedSize(values.remaining(), step), i -> predicate.test(values.get(base + i * step)));
+    }
+
+    /**
+     * Same as {@link #reduce(int, LongBuffer, long, LongBinaryOperator, int)} for an array.
+     */
+    public long reduce(int threads, long[] values, long identity, LongBinaryOperator operator, int step) throws InterruptedException {
+        return reduce(threads, LongBuffer.wrap(values), identity, operator, step);
+    }
+
+    /**
+     * Same as {@link #all(int, LongBuffer, LongPredicate, int)} for an array.
+     */
+    public boolean all(int threads, long[] values, LongPredicate predicate, int step) throws InterruptedException {
+        return all(threads, LongBuffer.wrap(values), predicate, step);
+    }
+
+    /**
+     * Same as {@link #any(int, LongBuffer, LongPredicate, int)} for an array.
+     */
+    public boolean any(int threads, long[] values, LongPredicate predicate, int step) throws InterruptedException {
+        return any(threads, LongBuffer.wrap(values), predicate, step);
+    }
+
+    /**
+     * Same as {@link #count(int, LongBuffer, LongPredicate, int)} for an array.
+     */
+    public int count(int threads, long[] values, LongPredicate predicate, int step) throws InterruptedException {
+        return count(threads, LongBuffer.wrap(values), predicate, step);
+    }
+
+    /**
+     * Reduces every {@code step}-th value between position and limit of the buffer.
+     * The buffer position is not changed.
+     * @param threads - number of parallel parts
+     * @param values - values to reduce
+     * @param identity - identity of the operator
+     * @param operator - associative operator
+     * @param step - step between values
+     * @return reduction result, or the identity if there are no values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public double reduce(int threads, DoubleBuffer values, double identity, DoubleBinaryOperator operator, int step) throws InterruptedException {
+        int base = values.position();
+        double result = identity;
+        for (double value : execute(threads, stridedSize(values.remaining(), step), range -> {
+            double part = identity;
+            for (int i = range.from(); i < range.to(); i++) {
+                part = operator.applyAsDouble(part, values.get(base + i * step));
+            }
+            return part;
+        })) {
+            result = operator.applyAsDouble(result, value);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether every {@code step}-th value between position and limit of the buffer matches the predicate.
+     * @param threads - number of parallel parts
+     * @param values - values to test
+     * @param predicate - predicate to test
+     * @param step - step between values
+     * @return whether all values match
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public boolean all(int threads, DoubleBuffer values, DoublePredicate predicate, int step) throws InterruptedException {
+        int base = values.position();
+        return !find(threads, stridedSize(values.remaining(), step), i -> !predicate.test(values.get(base + i * step)));
+    }
+
+    /**
+     * Checks whether any {@code step}-th value between position and limit of the buffer matches the predicate.
+     * @param threads - number of parallel parts
+     * @param values - values to test
+     * @param predicate - predicate to test
+     * @param step - step between values
+     * @return whether some value matches
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public boolean any(int threads, DoubleBuffer values, DoublePredicate predicate, int step) throws InterruptedException {
+        int base = values.position();
+        return find(threads, stridedSize(values.remaining(), step), i -> predicate.test(values.get(base + i * step)));
+    }
+
+    /**
+     * Counts {@code step}-th values between position and limit of the buffer matching the predicate.
+     * @param threads - number of parallel parts
+     * @param values - values to test
+     * @param predicate - predicate to test
+     * @param step - step between values
+     * @return number of matching values
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public int count(int threads, DoubleBuffer values, DoublePredicate predicate, int step) throws InterruptedException {
+        int base = values.position();
+        return countMatching(threads, stridedSize(values.remaining(), step), i -> predicate.test(values.get(base + i * step)));
+    }
+
+    /**
+     * Same as {@link #reduce(int, DoubleBuffer, double, DoubleBinaryOperator, int)} for an array.
+     */
+    public double reduce(int threads, double[] values, double identity, DoubleBinaryOperator operator, int step) throws InterruptedException {
+        return reduce(threads, DoubleBuffer.wrap(values), identity, operator, step);
+    }
+
+    /**
+     * Same as {@link #all(int, DoubleBuffer, DoublePredicate, int)} for an array.
+     */
+    public boolean all(int threads, double[] values, DoublePredicate predicate, int step) throws InterruptedException {
+        return all(threads, DoubleBuffer.wrap(values), predicate, step);
+    }
+
+    /**
+     * Same as {@link #any(int, DoubleBuffer, DoublePredicate, int)} for an array.
+     */
+    public boolean any(int threads, double[] values, DoublePredicate predicate, int step) throws InterruptedException {
+        return any(threads, DoubleBuffer.wrap(values), predicate, step);
+    }
+
+    /**
+     * Same as {@link #count(int, DoubleBuffer, DoublePredicate, int)} for an array.
+     */
+    public int count(int threads, double[] values, DoublePredicate predicate, int step) throws InterruptedException {
+        return count(threads, DoubleBuffer.wrap(values), predicate, step);
+    }
+
+    private boolean find(int threads, int count, IntPredicate matches) throws InterruptedException {
+        AtomicBoolean found = new AtomicBoolean();
+        execute(threads, count, range -> {
+            for (int i = range.from(); i < range.to() && !found.get(); i++) {
+                if (matches.test(i)) {
+                    found.set(true);
+                }
+            }
+            return null;
+        });
+        return found.get();
+    }
+
+    private int countMatching(int threads, int count, IntPredicate matches) throws InterruptedException {
+        int result = 0;
+        for (int part : execute(threads, count, range -> {
+            int matched = 0;
+            for (int i = range.from(); i < range.to(); i++) {
+                if (matches.test(i)) {
+                    matched++;
+                }
+            }
+            return matched;
+        })) {
+            result += part;
+        }
+        return result;
+    }
+}
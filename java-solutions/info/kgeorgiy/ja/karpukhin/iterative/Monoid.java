@@ -0,0 +1,11 @@
+package info.kgeorgiy.ja.karpukhin.iterative;
+
+import java.util.function.BinaryOperator;
+
+/**
+ * Associative operator together with its identity element.
+ * @param identity - identity element
+ * @param operator - associative operator
+ */
+public record Monoid<T>(T identity, BinaryOperator<T> operator) {
+}
@@ -3,102 +3,209 @@ package info.kgeorgiy.ja.karpukhin.iterative;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
-import java.util.stream.IntStream;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 
+/**
+ * {@link ParallelMapper} with a work-stealing scheduler.
+ * Arguments are split into ranges that are spread over per-worker lock-free deques,
+ * idle workers steal ranges from the other deques.
+ * Besides blocking {@link #map}, results can be awaited through a cancellable future or consumed as they appear.
+ */
 public class ParallelMapperImpl implements ParallelMapper {
-    private final List<Thread> threads = new ArrayList<>();
-    private final Queue<Runnable> tasks = new LinkedList<>();
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final List<Worker> workers = new ArrayList<>();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private volatile boolean closed;
 
     public ParallelMapperImpl(int threads) {
-        Runnable taskRunner = () -> {
-            try {
-                while (!Thread.interrupted()) {
-                    Runnable task;
-                    synchronized (tasks) {
-                        while (tasks.isEmpty()) {
-                            tasks.wait();
-                        }
-                        task = tasks.poll();
-                    }
-                    task.run();
-                }
-            } catch (InterruptedException ignored) {
-            }
-        };
-
-        IntStream.iterate(0, i -> i < threads, i -> i + 1)
-                .forEach(i -> {
-                    Thread thread = new Thread(taskRunner);
-                    thread.start();
-                    this.threads.add(thread);
-                });
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Threads number should be positive");
+        }
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Worker());
+        }
+        workers.forEach(worker -> worker.thread.start());
     }
 
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
-        List<R> result = new ArrayList<>(Collections.nCopies(args.size(), null));
-        final Counter counter = new Counter(args.size());
-        IntStream.iterate(0, i -> i < args.size(), i -> i + 1)
-                .forEach(i -> {
-                    final int index = i;
-                    submit(() -> result.set(index, f.apply(args.get(index))), counter);
-                });
-
-        synchronized (counter) {
-            while (counter.getValue() > 0) {
-                counter.wait();
+        CompletableFuture<List<R>> future = mapAsync(f, args);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (CancellationException e) {
+            throw new InterruptedException("Mapper was closed");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
             }
+            throw (Error) e.getCause();
+        }
+    }
+
+    /**
+     * Maps the function over the arguments without blocking the caller.
+     * Cancelling the returned future removes pending work of this call from the queues.
+     * @param f - function to apply
+     * @param args - arguments
+     * @return future of the results in the order of the arguments
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args) {
+        List<R> result = new ArrayList<>(Collections.nCopies(args.size(), null));
+        return submit(args.size(), i -> result.set(i, f.apply(args.get(i))), () -> result);
+    }
+
+    /**
+     * Maps the function over the arguments, handing every result to the consumer as soon as it is ready.
+     * The consumer is called from worker threads, possibly concurrently and in any order.
+     * Cancelling the returned future removes pending work of this call from the queues.
+     * @param f - function to apply
+     * @param args - arguments
+     * @param consumer - receives every result together with the index of its argument
+     * @return future completed when all results are consumed
+     */
+    public <T, R> CompletableFuture<Void> mapEach(Function<? super T, ? extends R> f, List<? extends T> args,
+                                                  ObjIntConsumer<? super R> consumer) {
+        return submit(args.size(), i -> consumer.accept(f.apply(args.get(i)), i), () -> null);
+    }
+
+    private <V> Job<V> submit(int size, IntConsumer action, Supplier<V> result) {
+        if (closed) {
+            throw new IllegalStateException("Mapper is closed");
         }
-        return result;
+        int chunkSize = Math.max(1, Math.ceilDiv(size, workers.size() * CHUNKS_PER_THREAD));
+        Job<V> job = new Job<>(action, result, Math.ceilDiv(size, chunkSize));
+        if (size == 0) {
+            job.complete(result.get());
+            return job;
+        }
+        for (int from = 0; from < size; from += chunkSize) {
+            Worker worker = workers.get(Math.floorMod(nextWorker.getAndIncrement(), workers.size()));
+            worker.tasks.offerLast(new Chunk(job, from, Math.min(from + chunkSize, size)));
+        }
+        // Every worker is woken up, so idle ones start stealing from busy ones
+        workers.forEach(worker -> LockSupport.unpark(worker.thread));
+        if (closed) {
+            abortPending();
+        }
+        return job;
     }
 
     @Override
     public void close() {
-        threads.forEach(Thread::interrupt);
-        for (Thread thread : threads) {
+        closed = true;
+        workers.forEach(worker -> worker.thread.interrupt());
+        for (Worker worker : workers) {
             try {
-                thread.join();
+                worker.thread.join();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }
+        abortPending();
     }
 
-    private void submit(Runnable task, Counter counter) {
-        synchronized (tasks) {
-            tasks.add(() -> {
-                task.run();
-                synchronized (counter) {
-                    counter.decrement();
-                    counter.notify();
+    private void abortPending() {
+        for (Worker worker : workers) {
+            Chunk chunk;
+            while ((chunk = worker.tasks.pollFirst()) != null) {
+                chunk.job().abort();
+            }
+        }
+    }
+
+    private Chunk steal(Worker thief) {
+        int start = ThreadLocalRandom.current().nextInt(workers.size());
+        for (int i = 0; i < workers.size(); i++) {
+            Worker victim = workers.get((start + i) % workers.size());
+            if (victim != thief) {
+                Chunk chunk = victim.tasks.pollLast();
+                if (chunk != null) {
+                    return chunk;
                 }
-            });
-            tasks.notify();
+            }
         }
+        return null;
     }
 
-    private static class Counter {
-        private int value;
+    private final class Worker implements Runnable {
+        private final Deque<Chunk> tasks = new ConcurrentLinkedDeque<>();
+        private final Thread thread = new Thread(this);
 
-        public Counter(int value) {
-            this.value = value;
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                Chunk chunk = tasks.pollFirst();
+                if (chunk == null) {
+                    chunk = steal(this);
+                }
+                if (chunk == null) {
+                    LockSupport.park(this);
+                } else {
+                    chunk.run();
+                }
+            }
         }
+    }
 
-        public void increment() {
-            value++;
+    private record Chunk(Job<?> job, int from, int to) {
+        void run() {
+            job.run(from, to);
         }
+    }
 
-        public void decrement() {
-            value--;
+    private final class Job<V> extends CompletableFuture<V> {
+        private final IntConsumer action;
+        private final Supplier<V> result;
+        private final AtomicInteger remaining;
+
+        Job(IntConsumer action, Supplier<V> result, int chunks) {
+            this.action = action;
+            this.result = result;
+            this.remaining = new AtomicInteger(chunks);
         }
 
-        public int getValue() {
-            return value;
+        void run(int from, int to) {
+            try {
+                for (int i = from; i < to && !isDone(); i++) {
+                    action.accept(i);
+                }
+            } catch (RuntimeException | Error e) {
+                completeExceptionally(e);
+            } finally {
+                countDown();
+            }
         }
 
-        public void setValue(int value) {
-            this.value = value;
+        void abort() {
+            completeExceptionally(new CancellationException("Mapper was closed"));
+            countDown();
+        }
+
+        private void countDown() {
+            if (remaining.decrementAndGet() == 0) {
+                complete(result.get());
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                for (Worker worker : workers) {
+                    worker.tasks.removeIf(chunk -> chunk.job() == this);
+                }
+            }
+            return cancelled;
         }
     }
-}
\ No newline at end of file
+}
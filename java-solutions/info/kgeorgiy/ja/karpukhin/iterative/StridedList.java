@@ -0,0 +1,32 @@
+package info.kgeorgiy.ja.karpukhin.iterative;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only view of every {@code step}-th element of a random access list, starting from {@code start}.
+ */
+class StridedList<T> extends AbstractList<T> implements RandomAccess {
+    private final List<? extends T> values;
+    private final int start;
+    private final int step;
+    private final int size;
+
+    StridedList(List<? extends T> values, int start, int step, int size) {
+        this.values = values;
+        this.start = start;
+        this.step = step;
+        this.size = size;
+    }
+
+    @Override
+    public T get(int index) {
+        return values.get(start + index * step);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,105 @@
+package info.kgeorgiy.ja.karpukhin.walk;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Computes file hashes with the given algorithm, consulting the cache when it is present.
+ * Failures are reported as an all-zero hash.
+ */
+class FileHasher {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MAP_THRESHOLD = 1 << 20;
+    private static final long MAP_CHUNK = 1 << 30;
+    private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+    private final HashAlgorithm algorithm;
+    private final HashCache cache;
+    private final byte[] error;
+
+    FileHasher(HashAlgorithm algorithm, HashCache cache) {
+        this.algorithm = algorithm;
+        this.cache = cache;
+        this.error = new byte[algorithm.length()];
+    }
+
+    byte[] error() {
+        return error;
+    }
+
+    byte[] hash(String file) {
+        try {
+            Path path = Path.of(file);
+            if (cache == null) {
+                return hash(path);
+            }
+            return hash(path, Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (IOException | InvalidPathException e) {
+            return error;
+        }
+    }
+
+    byte[] hash(Path path, BasicFileAttributes attributes) {
+        try {
+            if (cache == null || !attributes.isRegularFile()) {
+                return hash(path);
+            }
+            byte[] cached = cache.get(path, attributes);
+            if (cached != null) {
+                return cached;
+            }
+            byte[] hash = hash(path);
+            cache.put(path, attributes, hash);
+            return hash;
+        } catch (IOException e) {
+            return error;
+        }
+    }
+
+    private byte[] hash(Path path) throws IOException {
+        Hasher hasher = algorithm.newHasher();
+        if (Files.isRegularFile(path)) {
+            hashRegularFile(path, hasher);
+        } else {
+            hashStream(path, hasher);
+        }
+        return hasher.digest();
+    }
+
+    private static void hashRegularFile(Path path, Hasher hasher) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MAP_THRESHOLD) {
+                ByteBuffer buffer = buffers.get();
+                while (channel.read(buffer.clear()) != -1) {
+                    hasher.update(buffer.flip());
+                }
+            } else {
+                for (long position = 0; position < size; position += MAP_CHUNK) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(MAP_CHUNK, size - position));
+                    hasher.update(buffer);
+                }
+            }
+        }
+    }
+
+    private static void hashStream(Path path, Hasher hasher) throws IOException {
+        try (InputStream inputStream = new FileInputStream(path.toFile())) {
+            byte[] buffer = buffers.get().array();
+            int read;
+            while ((read = (inputStream.read(buffer))) != -1) {
+                hasher.update(ByteBuffer.wrap(buffer, 0, read));
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package info.kgeorgiy.ja.karpukhin.walk;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Hash algorithms available to {@link Walk}.
+ */
+public enum HashAlgorithm {
+    JENKINS("jenkins", 4, JenkinsHasher::new),
+    XXHASH64("xxhash64", 8, XxHash64Hasher::new),
+    SHA256("sha256", 32, Sha256Hasher::new);
+
+    private final String name;
+    private final int length;
+    private final Supplier<Hasher> factory;
+
+    HashAlgorithm(String name, int length, Supplier<Hasher> factory) {
+        this.name = name;
+        this.length = length;
+        this.factory = factory;
+    }
+
+    /**
+     * Returns algorithm by its command line name.
+     * @param name - algorithm name
+     * @return algorithm
+     * @throws IllegalArgumentException if there is no such algorithm
+     */
+    public static HashAlgorithm forName(String name) {
+        return Arrays.stream(values())
+                .filter(algorithm -> algorithm.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown hash algorithm: " + name));
+    }
+
+    public Hasher newHasher() {
+        return factory.get();
+    }
+
+    /**
+     * @return hash length in bytes
+     */
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,162 @@
+package info.kgeorgiy.ja.karpukhin.walk;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistent cache of finished file hashes.
+ * Entries are keyed by absolute path and are valid while size, modification time and file key stay the same.
+ */
+public class HashCache {
+    private static final int MAGIC = 0x57414c4b;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long RACY_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+
+    private final Path file;
+    private final HashAlgorithm algorithm;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private record Entry(long size, long modified, String key, byte[] hash) {
+    }
+
+    private HashCache(Path file, HashAlgorithm algorithm) {
+        this.file = file;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Loads cache from the given file. Missing, unreadable or corrupt file
+     * as well as file built with other algorithm gives an empty cache.
+     * @param file - cache file
+     * @param algorithm - hash algorithm of the cached values
+     * @return loaded cache
+     */
+    public static HashCache load(Path file, HashAlgorithm algorithm) {
+        HashCache cache = new HashCache(file, algorithm);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                System.err.println("Ignoring cache file of unknown format: " + file);
+                return cache;
+            }
+            if (!input.readUTF().equals(algorithm.toString())) {
+                return cache;
+            }
+            int size = input.readInt();
+            for (int i = 0; i < size; i++) {
+                String path = input.readUTF();
+                long fileSize = input.readLong();
+                long modified = input.readLong();
+                String key = input.readUTF();
+                byte[] hash = new byte[algorithm.length()];
+                input.readFully(hash);
+                cache.entries.put(path, new Entry(fileSize, modified, key, hash));
+            }
+        } catch (NoSuchFileException ignored) {
+        } catch (EOFException e) {
+            System.err.println("Ignoring truncated cache file: " + file);
+            cache.entries.clear();
+        } catch (IOException e) {
+            // The cache is only an optimization, a broken one must not stop hashing
+            System.err.println("Ignoring unreadable cache file " + file + ": " + e.getMessage());
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Returns cached hash of the file if its metadata has not changed.
+     * @param path - file path
+     * @param attributes - current file attributes
+     * @return cached hash or {@code null} if there is no valid entry
+     */
+    public byte[] get(Path path, BasicFileAttributes attributes) {
+        Entry entry = entries.get(key(path));
+        if (entry != null && entry.size() == attributes.size()
+                && entry.modified() == modified(attributes) && entry.key().equals(fileKey(attributes))) {
+            hits.increment();
+            return entry.hash();
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores hash of the file computed for the given attributes.
+     * @param path - file path
+     * @param attributes - file attributes read before hashing
+     * @param hash - finished hash
+     */
+    public void put(Path path, BasicFileAttributes attributes, byte[] hash) {
+        long modified = modified(attributes);
+        // A file modified just now may change again within the timestamp granularity
+        if (modified > TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - RACY_INTERVAL) {
+            return;
+        }
+        entries.put(key(path), new Entry(attributes.size(), modified, fileKey(attributes), hash));
+    }
+
+    /**
+     * Atomically replaces the cache file with the current entries.
+     * @throws IOException if the cache cannot be written
+     */
+    public void save() throws IOException {
+        Path directory = Objects.requireNonNullElse(file.toAbsolutePath().getParent(), Path.of(""));
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeUTF(algorithm.toString());
+                output.writeInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    output.writeLong(entry.getValue().size());
+                    output.writeLong(entry.getValue().modified());
+                    output.writeUTF(entry.getValue().key());
+                    output.write(entry.getValue().hash());
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static long modified(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static String fileKey(BasicFileAttributes attributes) {
+        return Objects.toString(attributes.fileKey(), "");
+    }
+}
@@ -0,0 +1,94 @@
+package info.kgeorgiy.ja.karpukhin.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes {@code <hex hash> <file>} lines straight into reused buffers of a file channel.
+ * Safe for concurrent use, every line is written atomically.
+ */
+class HashWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] SEPARATOR = System.lineSeparator().toCharArray();
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+
+    HashWriter(Path file, Charset charset) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    synchronized void write(byte[] hash, CharSequence file) throws IOException {
+        reserve(hash.length * 2 + 1);
+        for (byte b : hash) {
+            chars.put(DIGITS[(b >>> 4) & 0xF]);
+            chars.put(DIGITS[b & 0xF]);
+        }
+        chars.put(' ');
+        for (int i = 0; i < file.length(); i++) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            chars.put(file.charAt(i));
+        }
+        reserve(SEPARATOR.length);
+        chars.put(SEPARATOR);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try (channel) {
+            encode(true);
+            while (encoder.flush(bytes).isOverflow()) {
+                drain();
+            }
+            drain();
+        }
+    }
+
+    private void reserve(int length) throws IOException {
+        if (chars.remaining() < length) {
+            encode(false);
+        }
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        // An unpaired high surrogate at the end stays in the buffer until the next line arrives
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
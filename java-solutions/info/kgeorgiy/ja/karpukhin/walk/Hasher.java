@@ -0,0 +1,20 @@
+package info.kgeorgiy.ja.karpukhin.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental hash function over a sequence of byte buffers.
+ */
+public interface Hasher {
+    /**
+     * Feeds remaining bytes of the buffer to the hash and moves its position to the limit.
+     * @param bytes - bytes to hash
+     */
+    void update(ByteBuffer bytes);
+
+    /**
+     * Finishes hashing. The hasher should not be used afterwards.
+     * @return hash value, most significant byte first
+     */
+    byte[] digest();
+}
@@ -0,0 +1,45 @@
+package info.kgeorgiy.ja.karpukhin.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Jenkins one-at-a-time hash.
+ */
+class JenkinsHasher implements Hasher {
+    private int hash;
+
+    @Override
+    public void update(ByteBuffer bytes) {
+        hash = jenkins(bytes, hash);
+    }
+
+    @Override
+    public byte[] digest() {
+        int result = hash;
+        result += result << 3;
+        result ^= result >>> 11;
+        result += result << 15;
+        return ByteBuffer.allocate(Integer.BYTES).putInt(result).array();
+    }
+
+    static int jenkins(ByteBuffer bytes, int currentHash) {
+        int hash = currentHash;
+        if (bytes.hasArray()) {
+            byte[] array = bytes.array();
+            int end = bytes.arrayOffset() + bytes.limit();
+            for (int i = bytes.arrayOffset() + bytes.position(); i < end; i++) {
+                hash += (array[i] & 0xFF);
+                hash += (hash << 10);
+                hash ^= (hash >>> 6);
+            }
+            bytes.position(bytes.limit());
+        } else {
+            while (bytes.hasRemaining()) {
+                hash += (bytes.get() & 0xFF);
+                hash += (hash << 10);
+                hash ^= (hash >>> 6);
+            }
+        }
+        return hash;
+    }
+}
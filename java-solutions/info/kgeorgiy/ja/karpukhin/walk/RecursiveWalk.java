@@ -0,0 +1,120 @@
+package info.kgeorgiy.ja.karpukhin.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Version of {@link Walk} that hashes every file inside the listed directories.
+ * Results are written as soon as they are computed, so the tree is never held in memory.
+ */
+public class RecursiveWalk {
+    private static final int FILE_BATCH_SIZE = 64;
+
+    public static void main(String[] args) {
+        Walk.run(args, "RecursiveWalk", true);
+    }
+
+    static void walkDirectory(Path directory, HashWriter writer, FileHasher hasher) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                writer.write(hasher.hash(file, attributes), file.toString());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                writer.write(hasher.error(), file.toString());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    static void walkDirectory(Path directory, HashWriter writer, FileHasher hasher, ForkJoinPool pool) throws IOException {
+        try {
+            pool.invoke(new DirectoryTask(directory, writer, hasher));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class DirectoryTask extends RecursiveAction {
+        private final Path directory;
+        private final HashWriter writer;
+        private final FileHasher hasher;
+
+        DirectoryTask(Path directory, HashWriter writer, FileHasher hasher) {
+            this.directory = directory;
+            this.writer = writer;
+            this.hasher = hasher;
+        }
+
+        @Override
+        protected void compute() {
+            // Subdirectories and batches of files are forked as separate tasks, idle workers steal them
+            List<ForkJoinTask<?>> subtasks = new ArrayList<>();
+            List<FileEntry> batch = new ArrayList<>(FILE_BATCH_SIZE);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        write(writer, hasher.error(), entry);
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        subtasks.add(new DirectoryTask(entry, writer, hasher).fork());
+                    } else {
+                        batch.add(new FileEntry(entry, attributes));
+                        if (batch.size() == FILE_BATCH_SIZE) {
+                            subtasks.add(new FileBatchTask(batch, writer, hasher).fork());
+                            batch = new ArrayList<>(FILE_BATCH_SIZE);
+                        }
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                write(writer, hasher.error(), directory);
+            }
+            new FileBatchTask(batch, writer, hasher).compute();
+            subtasks.forEach(ForkJoinTask::join);
+        }
+    }
+
+    private record FileEntry(Path path, BasicFileAttributes attributes) {
+    }
+
+    private static class FileBatchTask extends RecursiveAction {
+        private final List<FileEntry> files;
+        private final HashWriter writer;
+        private final FileHasher hasher;
+
+        FileBatchTask(List<FileEntry> files, HashWriter writer, FileHasher hasher) {
+            this.files = files;
+            this.writer = writer;
+            this.hasher = hasher;
+        }
+
+        @Override
+        protected void compute() {
+            for (FileEntry file : files) {
+                write(writer, hasher.hash(file.path(), file.attributes()), file.path());
+            }
+        }
+    }
+
+    private static void write(HashWriter writer, byte[] hash, Path file) {
+        try {
+            writer.write(hash, file.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
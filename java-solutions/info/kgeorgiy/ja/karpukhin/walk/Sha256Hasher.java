@@ -0,0 +1,30 @@
+package info.kgeorgiy.ja.karpukhin.walk;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 through {@link MessageDigest}.
+ */
+class Sha256Hasher implements Hasher {
+    private final MessageDigest digest;
+
+    Sha256Hasher() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    @Override
+    public void update(ByteBuffer bytes) {
+        digest.update(bytes);
+    }
+
+    @Override
+    public byte[] digest() {
+        return digest.digest();
+    }
+}
@@ -1,51 +1,99 @@
 package info.kgeorgiy.ja.karpukhin.walk;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class Walk {
     private static final Charset charset = StandardCharsets.UTF_8;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int WINDOW_PER_THREAD = 64;
 
     public static void main(String[] args) {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
-            System.err.println("Usage: Walk <input file> <output file>");
+        run(args, "Walk", false);
+    }
+
+    static void run(String[] args, String name, boolean recursive) {
+        if (args == null || args.length < 2 || args.length % 2 != 0 || args[0] == null || args[1] == null) {
+            System.err.println("Usage: " + name + " <input file> <output file> [--threads <number of threads>]"
+                    + " [--cache <cache file>] [--hash jenkins|xxhash64|sha256]");
             return;
         }
 
         String inputFile = args[0];
         String outputFile = args[1];
+        int threads = 1;
+        String cacheFile = null;
+        HashAlgorithm algorithm = HashAlgorithm.JENKINS;
+        try {
+            for (int i = 2; i < args.length; i += 2) {
+                switch (Objects.requireNonNull(args[i], "Option should not be null")) {
+                    case "--threads" -> {
+                        threads = Integer.parseInt(args[i + 1]);
+                        if (threads <= 0) {
+                            throw new IllegalArgumentException("Threads number should be positive");
+                        }
+                    }
+                    case "--cache" -> cacheFile = Objects.requireNonNull(args[i + 1], "Cache file should not be null");
+                    case "--hash" -> algorithm = HashAlgorithm.forName(args[i + 1]);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | NullPointerException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            return;
+        }
 
-        walk(inputFile, outputFile);
+        if (cacheFile == null) {
+            walk(inputFile, outputFile, threads, algorithm, null, recursive);
+            return;
+        }
+        try {
+            HashCache cache = HashCache.load(Path.of(cacheFile), algorithm);
+            walk(inputFile, outputFile, threads, algorithm, cache, recursive);
+            cache.save();
+            System.out.println("Cache hits: " + cache.getHits() + ", misses: " + cache.getMisses());
+        } catch (IOException e) {
+            System.err.println("Error accessing cache file: " + e.getMessage());
+        } catch (InvalidPathException e) {
+            System.err.println("Invalid path: " + e.getMessage());
+        }
     }
 
     public static void walk(String inputFile, String outputFile) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile, charset))) {
+        walk(inputFile, outputFile, 1, HashAlgorithm.JENKINS, null, false);
+    }
+
+    public static void walk(String inputFile, String outputFile, int threads,
+                            HashAlgorithm algorithm, HashCache cache, boolean recursive) {
+        FileHasher hasher = new FileHasher(algorithm, cache);
+        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile, charset), BUFFER_SIZE)) {
             Path pathOut = Path.of(outputFile);
             if (!Files.exists(pathOut) && pathOut.getParent() != null) {
                 Files.createDirectories(pathOut.getParent());
             }
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile, charset))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    try (InputStream inputStream = new FileInputStream(Path.of(line).toFile())) {
-                        byte[] buffer = new byte[512];
-                        int hash = 0;
-                        int read;
-                        while ((read = (inputStream.read(buffer))) != -1) {
-                            hash = jenkins(buffer, hash, read);
+            try (HashWriter writer = new HashWriter(pathOut, charset)) {
+                if (threads == 1) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (recursive && isDirectory(line)) {
+                            RecursiveWalk.walkDirectory(Path.of(line), writer, hasher);
+                        } else {
+                            writer.write(hasher.hash(line), line);
                         }
-                        hash += hash << 3;
-                        hash ^= hash >>> 11;
-                        hash += hash << 15;
-                        writer.write(String.format("%08x ", hash));
-                    } catch (IOException | InvalidPathException e) {
-                        writer.write("00000000 ");
                     }
-                    writer.write(line + System.lineSeparator());
+                } else {
+                    walkParallel(reader, writer, threads, hasher, recursive);
                 }
             } catch (IOException e) {
                 System.err.println("Error writing to output file: " + e.getMessage());
@@ -63,15 +111,57 @@ public class Walk {
         }
     }
 
-    public static int jenkins(byte[] bytes, int currentHash, int length) {
-        int hash = currentHash;
-        if (bytes != null) {
-            for (int i = 0; i < length; i++) {
-                hash += (bytes[i] & 0xFF);
-                hash += (hash << 10);
-                hash ^= (hash >>> 6);
+    private static void walkParallel(BufferedReader reader, HashWriter writer, int threads,
+                                     FileHasher hasher, boolean recursive) throws IOException {
+        // Results are written in input order, so only a bounded window of files is hashed ahead of the writer
+        ForkJoinPool workers = new ForkJoinPool(threads);
+        Queue<String> files = new ArrayDeque<>();
+        Queue<Future<byte[]>> hashes = new ArrayDeque<>();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (recursive && isDirectory(line)) {
+                    while (!hashes.isEmpty()) {
+                        writer.write(await(hashes.poll(), hasher), files.poll());
+                    }
+                    RecursiveWalk.walkDirectory(Path.of(line), writer, hasher, workers);
+                    continue;
+                }
+                final String file = line;
+                files.add(file);
+                hashes.add(workers.submit(() -> hasher.hash(file)));
+                if (hashes.size() >= threads * WINDOW_PER_THREAD) {
+                    writer.write(await(hashes.poll(), hasher), files.poll());
+                }
             }
+            while (!hashes.isEmpty()) {
+                writer.write(await(hashes.poll(), hasher), files.poll());
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static byte[] await(Future<byte[]> hash, FileHasher hasher) throws IOException {
+        try {
+            return hash.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while hashing files");
+        } catch (ExecutionException e) {
+            return hasher.error();
         }
-        return hash;
+    }
+
+    private static boolean isDirectory(String file) {
+        try {
+            return Files.isDirectory(Path.of(file));
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    public static int jenkins(byte[] bytes, int currentHash, int length) {
+        return bytes == null ? currentHash : JenkinsHasher.jenkins(ByteBuffer.wrap(bytes, 0, length), currentHash);
     }
 }
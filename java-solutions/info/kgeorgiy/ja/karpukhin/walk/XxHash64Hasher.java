@@ -0,0 +1,95 @@
+package info.kgeorgiy.ja.karpukhin.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * XXH64 hash with zero seed. Input is consumed eight bytes per step in 32-byte stripes.
+ */
+class XxHash64Hasher implements Hasher {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    private long v1 = PRIME1 + PRIME2;
+    private long v2 = PRIME2;
+    private long v3 = 0;
+    private long v4 = -PRIME1;
+    private long length;
+    private final ByteBuffer tail = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public void update(ByteBuffer bytes) {
+        ByteBuffer input = bytes.slice().order(ByteOrder.LITTLE_ENDIAN);
+        bytes.position(bytes.limit());
+        length += input.remaining();
+        if (tail.position() > 0) {
+            while (tail.hasRemaining() && input.hasRemaining()) {
+                tail.put(input.get());
+            }
+            if (tail.hasRemaining()) {
+                return;
+            }
+            stripe(tail.flip());
+            tail.clear();
+        }
+        while (input.remaining() >= STRIPE) {
+            stripe(input);
+        }
+        tail.put(input);
+    }
+
+    @Override
+    public byte[] digest() {
+        long hash;
+        if (length >= STRIPE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += length;
+
+        tail.flip();
+        while (tail.remaining() >= Long.BYTES) {
+            hash ^= round(0, tail.getLong());
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (tail.remaining() >= Integer.BYTES) {
+            hash ^= (tail.getInt() & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+        }
+        while (tail.hasRemaining()) {
+            hash ^= (tail.get() & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return ByteBuffer.allocate(Long.BYTES).putLong(hash).array();
+    }
+
+    private void stripe(ByteBuffer input) {
+        v1 = round(v1, input.getLong());
+        v2 = round(v2, input.getLong());
+        v3 = round(v3, input.getLong());
+        v4 = round(v4, input.getLong());
+    }
+
+    private static long round(long accumulator, long input) {
+        return Long.rotateLeft(accumulator + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long merge(long hash, long accumulator) {
+        return (hash ^ round(0, accumulator)) * PRIME1 + PRIME4;
+    }
+}